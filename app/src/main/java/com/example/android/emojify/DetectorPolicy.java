@@ -0,0 +1,77 @@
+/*
+* Copyright (C) 2017 The Android Open Source Project
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*  	http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package com.example.android.emojify;
+
+import android.content.Context;
+
+import com.google.android.gms.vision.face.FaceDetector;
+
+/**
+ * Face detector configurations, ordered from the most accurate to the cheapest.
+ * {@link DetectorPolicySelector} picks one of them for each job.
+ */
+enum DetectorPolicy {
+
+    // Accurate mode, used whenever the budget allows it. No policy computes landmarks, the emoji
+    // are placed using the face bounds only
+    ACCURATE(FaceDetector.ACCURATE_MODE, FaceDetector.NO_LANDMARKS, .1f, false),
+
+    // The FaceDetector.Builder defaults
+    FAST(FaceDetector.FAST_MODE, FaceDetector.NO_LANDMARKS, .1f, false),
+
+    // Fast mode, ignoring faces smaller than a fifth of the image width
+    FAST_LARGE_FACES(FaceDetector.FAST_MODE, FaceDetector.NO_LANDMARKS, .2f, false),
+
+    // Cheapest configuration, only the most prominent face is detected
+    FAST_PROMINENT_FACE(FaceDetector.FAST_MODE, FaceDetector.NO_LANDMARKS, .3f, true);
+
+    private final int mMode;
+    private final int mLandmarkType;
+    private final float mMinFaceSize;
+    private final boolean mProminentFaceOnly;
+
+    DetectorPolicy(int mode, int landmarkType, float minFaceSize, boolean prominentFaceOnly) {
+        mMode = mode;
+        mLandmarkType = landmarkType;
+        mMinFaceSize = minFaceSize;
+        mProminentFaceOnly = prominentFaceOnly;
+    }
+
+    /**
+     * Whether this policy can miss faces other than the most prominent one.
+     */
+    boolean isProminentFaceOnly() {
+        return mProminentFaceOnly;
+    }
+
+    /**
+     * Builds a face detector configured for this policy.
+     *
+     * @param context Application context
+     * @return The new face detector
+     */
+    FaceDetector buildDetector(Context context) {
+        return new FaceDetector.Builder(context)
+                .setTrackingEnabled(false)
+                .setClassificationType(FaceDetector.ALL_CLASSIFICATIONS)
+                .setMode(mMode)
+                .setLandmarkType(mLandmarkType)
+                .setMinFaceSize(mMinFaceSize)
+                .setProminentFaceOnly(mProminentFaceOnly)
+                .build();
+    }
+}
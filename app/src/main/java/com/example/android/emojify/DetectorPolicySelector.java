@@ -0,0 +1,191 @@
+/*
+* Copyright (C) 2017 The Android Open Source Project
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*  	http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package com.example.android.emojify;
+
+import android.content.Context;
+
+import com.google.android.gms.vision.face.FaceDetector;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import timber.log.Timber;
+
+/**
+ * Chooses a {@link DetectorPolicy} for each job based on the image size, the caller's latency
+ * budget and the timings of previous runs, and caches one detector per policy.
+ * <p>
+ * Policies that have not been measured yet are assumed to fit the budget, so the most accurate
+ * policy is always tried first. The first detection after a detector is built includes its
+ * warm-up and is not used as a timing. Every {@link #PROBE_INTERVAL} jobs, the next more
+ * accurate policy is run again and its timing replaces the old estimate, so a policy whose
+ * estimate went over budget can recover.
+ */
+class DetectorPolicySelector {
+
+    // Weight given to the latest timing in the moving average
+    static final float TIMING_SMOOTHING = .3f;
+
+    // Number of jobs between two runs of a more accurate policy than the budget allows
+    static final int PROBE_INTERVAL = 10;
+
+    // How far over budget the cheapest full policy must be before only looking for one face
+    static final float PROMINENT_FACE_OVERRUN = 4f;
+
+    private final Map<DetectorPolicy, FaceDetector> mDetectors =
+            new EnumMap<>(DetectorPolicy.class);
+
+    // Estimated detection time in milliseconds per megapixel, missing until measured
+    private final Map<DetectorPolicy, Float> mMillisPerMegapixel =
+            new EnumMap<>(DetectorPolicy.class);
+
+    // Policies whose warm-up detection has already been discarded
+    private final Set<DetectorPolicy> mWarmedUp = EnumSet.noneOf(DetectorPolicy.class);
+
+    private int mJobsSinceProbe;
+
+    // Policy run to re-measure it, its next timing replaces the estimate
+    private DetectorPolicy mProbedPolicy;
+
+    /**
+     * Picks the most accurate policy whose estimated detection time fits in the latency budget.
+     * If none of them does, falls back to the cheapest policy that still finds every face, and
+     * only to the prominent face policy when even that one is far over budget.
+     *
+     * @param width           The width of the image to scan
+     * @param height          The height of the image to scan
+     * @param latencyBudgetMs The time the caller is willing to spend on detection
+     * @return The chosen policy
+     */
+    synchronized DetectorPolicy choose(int width, int height, long latencyBudgetMs) {
+        DetectorPolicy[] policies = DetectorPolicy.values();
+        mJobsSinceProbe++;
+
+        DetectorPolicy chosen = null;
+        DetectorPolicy fallback = null;
+        for (DetectorPolicy policy : policies) {
+            if (policy.isProminentFaceOnly()) {
+                continue;
+            }
+            fallback = policy;
+            if (estimateMillis(policy, width, height) <= latencyBudgetMs) {
+                chosen = policy;
+                break;
+            }
+        }
+
+        if (chosen == null) {
+            if (estimateMillis(fallback, width, height)
+                    > PROMINENT_FACE_OVERRUN * latencyBudgetMs) {
+                chosen = DetectorPolicy.FAST_PROMINENT_FACE;
+            } else {
+                chosen = fallback;
+            }
+        }
+
+        // Now and then, measure the next more accurate policy again. Only jobs that could have
+        // been probed count towards the interval
+        if (chosen.ordinal() == 0) {
+            mJobsSinceProbe = 0;
+        } else if (mJobsSinceProbe >= PROBE_INTERVAL) {
+            chosen = policies[chosen.ordinal() - 1];
+            mProbedPolicy = chosen;
+            mJobsSinceProbe = 0;
+        }
+
+        Timber.d("detectorPolicy: " + chosen.name());
+        return chosen;
+    }
+
+    /**
+     * Returns the detector for the policy, building it on first use. A detector that was not
+     * operational yet, because Play Services was still downloading the face library, is rebuilt.
+     *
+     * @param context Application context
+     * @param policy  The chosen policy
+     * @return The face detector configured for the policy
+     */
+    synchronized FaceDetector getDetector(Context context, DetectorPolicy policy) {
+        FaceDetector detector = mDetectors.get(policy);
+        if (detector != null && !detector.isOperational()) {
+            detector.release();
+            detector = null;
+        }
+        if (detector == null) {
+            // Use the application context, the detector outlives the calling activity
+            detector = policy.buildDetector(context.getApplicationContext());
+            mDetectors.put(policy, detector);
+        }
+        return detector;
+    }
+
+    /**
+     * Records how long a detection took so later jobs get a better estimate. Only detections
+     * from an operational detector should be recorded, the others return no faces right away.
+     *
+     * @param policy    The policy used for the detection
+     * @param width     The width of the scanned image
+     * @param height    The height of the scanned image
+     * @param elapsedMs The time spent detecting faces
+     */
+    synchronized void recordTiming(DetectorPolicy policy, int width, int height, long elapsedMs) {
+        float megapixels = megapixels(width, height);
+        if (megapixels <= 0) {
+            return;
+        }
+
+        // Skip the first detection, it includes the detector warm-up
+        if (mWarmedUp.add(policy)) {
+            Timber.d(policy.name() + " warm-up: " + elapsedMs + "ms");
+            return;
+        }
+
+        float sample = elapsedMs / megapixels;
+        Float estimate = mMillisPerMegapixel.get(policy);
+        if (estimate == null || policy == mProbedPolicy) {
+            estimate = sample;
+            mProbedPolicy = null;
+        } else {
+            estimate += TIMING_SMOOTHING * (sample - estimate);
+        }
+        mMillisPerMegapixel.put(policy, estimate);
+        Timber.d(policy.name() + " msPerMegapixel: " + estimate);
+    }
+
+    /**
+     * Releases all the cached detectors. The timings are kept, but the next detection with each
+     * policy counts as a warm-up again.
+     */
+    synchronized void release() {
+        for (FaceDetector detector : mDetectors.values()) {
+            detector.release();
+        }
+        mDetectors.clear();
+        mWarmedUp.clear();
+    }
+
+    private float estimateMillis(DetectorPolicy policy, int width, int height) {
+        Float estimate = mMillisPerMegapixel.get(policy);
+        return estimate == null ? 0 : estimate * megapixels(width, height);
+    }
+
+    private static float megapixels(int width, int height) {
+        return (float) width * height / 1000000f;
+    }
+}
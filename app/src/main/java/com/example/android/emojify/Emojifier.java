@@ -20,6 +20,8 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
+import android.graphics.RectF;
+import android.os.SystemClock;
 import android.util.SparseArray;
 import android.widget.Toast;
 
@@ -38,33 +40,77 @@ class Emojifier {
     private static final double SMILING_PROB_THRESHOLD = .15;
     private static final double FROWNING_PROB_THRESHOLD = .01;
     private static final double EYE_OPEN_PROB_THRESHOLD = .5;
+    private static final long DEFAULT_LATENCY_BUDGET_MS = 500;
+
+    private static final DetectorPolicySelector sPolicySelector = new DetectorPolicySelector();
 
     /**
-     * Detects faces in an image and draws the most similar emoji
+     * Detects faces in an image and draws the most similar emoji, using the default
+     * latency budget
      *
      * @param context Application context
      * @param picture The Bitmap to scan for the faces
      * @return New bitmap including emojis
      */
     static Bitmap detectAndDrawFaces(Context context, Bitmap picture) {
+        return detectAndDrawFaces(context, picture, DEFAULT_LATENCY_BUDGET_MS);
+    }
+
+    /**
+     * Detects faces in an image and draws the most similar emoji
+     *
+     * @param context         Application context
+     * @param picture         The Bitmap to scan for the faces
+     * @param latencyBudgetMs The time to aim for when detecting the faces
+     * @return New bitmap including emojis
+     */
+    static Bitmap detectAndDrawFaces(Context context, Bitmap picture, long latencyBudgetMs) {
 
-        // Create the face detector, disable tracking and enable classifications
-        FaceDetector detector = new FaceDetector.Builder(context)
-                .setTrackingEnabled(false)
-                .setClassificationType(FaceDetector.ALL_CLASSIFICATIONS)
-                .build();
+        // Choose the detector configuration for this image and budget
+        int width = picture.getWidth();
+        int height = picture.getHeight();
+        DetectorPolicy policy = sPolicySelector.choose(width, height, latencyBudgetMs);
+        FaceDetector detector = sPolicySelector.getDetector(context, policy);
 
         // Build the frame
         Frame frame = new Frame.Builder().setBitmap(picture).build();
 
-        // Detect the faces
+        // Detect the faces and record how long it took
+        long startMs = SystemClock.elapsedRealtime();
         SparseArray<Face> faces = detector.detect(frame);
+        if (detector.isOperational()) {
+            sPolicySelector.recordTiming(policy, width, height,
+                    SystemClock.elapsedRealtime() - startMs);
+        } else {
+            Timber.d("Face detector is not operational yet");
+        }
+
+        return drawFaces(context, picture, faces);
+    }
+
+    /**
+     * Draws the most similar emoji over each of the given faces
+     *
+     * @param context Application context
+     * @param picture The Bitmap the faces were detected in
+     * @param faces   The detected faces
+     * @return New bitmap including emojis, or the original picture if there are no faces
+     */
+    static Bitmap drawFaces(Context context, Bitmap picture, SparseArray<Face> faces) {
 
         // Log the number of faces
         Timber.d("numFaces: " + faces.size());
 
-        // Initialize result bitmap to original picture
-        Bitmap resultBitmap = picture;
+        if (faces.size() == 0) {
+            return picture;
+        }
+
+        // Initialize the results bitmap to be a mutable copy of the original image, shared by
+        // all the faces
+        Bitmap resultBitmap = Bitmap.createBitmap(picture.getWidth(),
+                picture.getHeight(), picture.getConfig());
+        Canvas canvas = new Canvas(resultBitmap);
+        canvas.drawBitmap(picture, 0, 0, null);
 
         // Iterate through the faces
         for (int i = 0; i < faces.size(); ++i) {
@@ -106,14 +152,20 @@ class Emojifier {
                     Toast.makeText(context, R.string.no_emoji, Toast.LENGTH_SHORT).show();
             }
 
-            // Add the emojiBitmap to the proper position in the original image
-            resultBitmap = addBitmapToFace(resultBitmap, emojiBitmap, face);
+            // Add the emojiBitmap to the proper position in the result image
+            addBitmapToFace(canvas, emojiBitmap, face);
         }
 
-        detector.release();
         return resultBitmap;
     }
 
+    /**
+     * Releases the face detectors, call when no more images will be processed
+     */
+    static void releaseDetectors() {
+        sPolicySelector.release();
+    }
+
     /**
      * Determines the closest emoji to the expression on the face, based on the
      * odds that the person is smiling and has each eye open
@@ -169,43 +221,48 @@ class Emojifier {
     }
 
     /**
-     * Combines the original picture with the emoji bitmaps
+     * Draws the emoji bitmap over the face
      *
-     * @param backgroundBitmap The original picture
-     * @param emojiBitmap      The chosen emoji
-     * @param face             The detected face
-     * @return The final bitmap, including the emojis over the faces
+     * @param canvas      The canvas backed by the result image
+     * @param emojiBitmap The chosen emoji
+     * @param face        The detected face
      */
-    private static Bitmap addBitmapToFace(Bitmap backgroundBitmap, Bitmap emojiBitmap, Face face) {
+    private static void addBitmapToFace(Canvas canvas, Bitmap emojiBitmap, Face face) {
+
+        // Determine where the emoji goes and scale it to fit
+        RectF bounds = emojiBounds(face, emojiBitmap.getWidth(), emojiBitmap.getHeight());
+        emojiBitmap = Bitmap.createScaledBitmap(emojiBitmap,
+                Math.round(bounds.width()), Math.round(bounds.height()), false);
+
+        // Draw the emoji on top of the picture
+        canvas.drawBitmap(emojiBitmap, bounds.left, bounds.top, null);
+    }
 
-        // Initialize the results bitmap to be a mutable copy of the original image
-        Bitmap resultBitmap = Bitmap.createBitmap(backgroundBitmap.getWidth(),
-                backgroundBitmap.getHeight(), backgroundBitmap.getConfig());
+    /**
+     * Determines the area the emoji covers on the picture
+     *
+     * @param face        The detected face
+     * @param emojiWidth  The width of the unscaled emoji
+     * @param emojiHeight The height of the unscaled emoji
+     * @return The bounds of the scaled emoji, in picture coordinates
+     */
+    static RectF emojiBounds(Face face, int emojiWidth, int emojiHeight) {
 
         // Scale the emoji so it looks better on the face
         float scaleFactor = EMOJI_SCALE_FACTOR;
 
         // Determine the size of the emoji to match the width of the face and preserve aspect ratio
         int newEmojiWidth = (int) (face.getWidth() * scaleFactor);
-        int newEmojiHeight = (int) (emojiBitmap.getHeight() *
-                newEmojiWidth / emojiBitmap.getWidth() * scaleFactor);
-
-
-        // Scale the emoji
-        emojiBitmap = Bitmap.createScaledBitmap(emojiBitmap, newEmojiWidth, newEmojiHeight, false);
+        int newEmojiHeight = (int) (emojiHeight * newEmojiWidth / emojiWidth * scaleFactor);
 
         // Determine the emoji position so it best lines up with the face
         float emojiPositionX =
-                (face.getPosition().x + face.getWidth() / 2) - emojiBitmap.getWidth() / 2;
+                (face.getPosition().x + face.getWidth() / 2) - newEmojiWidth / 2;
         float emojiPositionY =
-                (face.getPosition().y + face.getHeight() / 2) - emojiBitmap.getHeight() / 3;
-
-        // Create the canvas and draw the bitmaps to it
-        Canvas canvas = new Canvas(resultBitmap);
-        canvas.drawBitmap(backgroundBitmap, 0, 0, null);
-        canvas.drawBitmap(emojiBitmap, emojiPositionX, emojiPositionY, null);
+                (face.getPosition().y + face.getHeight() / 2) - newEmojiHeight / 3;
 
-        return resultBitmap;
+        return new RectF(emojiPositionX, emojiPositionY,
+                emojiPositionX + newEmojiWidth, emojiPositionY + newEmojiHeight);
     }
 
     // Enum for all possible Emojis
@@ -77,6 +77,16 @@ public class MainActivity extends AppCompatActivity {
         Timber.plant(new Timber.DebugTree());
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        // Release the cached face detectors
+        if (isFinishing()) {
+            Emojifier.releaseDetectors();
+        }
+    }
+
     /**
      * OnClick method for "Emojify Me!" Button. Launches the camera app.
      */
@@ -0,0 +1,138 @@
+package com.example.android.emojify;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowBitmap;
+import org.robolectric.shadows.ShadowBitmapFactory;
+
+/**
+ * Counts the bitmaps allocated while the tracking shadows are installed.
+ */
+class BitmapAllocations {
+
+    // Robolectric bitmaps have no real config, so count every pixel as ARGB_8888
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private static int sCount;
+    private static long sBytes;
+
+    static void reset() {
+        sCount = 0;
+        sBytes = 0;
+    }
+
+    static int count() {
+        return sCount;
+    }
+
+    static long bytes() {
+        return sBytes;
+    }
+
+    static long bytesFor(int width, int height) {
+        return (long) width * height * BYTES_PER_PIXEL;
+    }
+
+    private static Bitmap record(Bitmap bitmap) {
+        if (bitmap != null) {
+            record(bitmap.getWidth(), bitmap.getHeight());
+        }
+        return bitmap;
+    }
+
+    private static void record(int width, int height) {
+        sCount++;
+        sBytes += bytesFor(width, height);
+    }
+
+    /**
+     * Records the bitmap derived from the source, unless the source itself was returned.
+     */
+    private static Bitmap recordDerived(Bitmap src, Bitmap bitmap) {
+        return bitmap == src ? bitmap : record(bitmap);
+    }
+
+    /**
+     * Records a decoded bitmap. Robolectric builds one even for a bounds-only decode, which
+     * allocates nothing on a device, so those are not counted.
+     */
+    private static Bitmap recordDecoded(Bitmap bitmap, BitmapFactory.Options options) {
+        return options != null && options.inJustDecodeBounds ? bitmap : record(bitmap);
+    }
+
+    @Implements(Bitmap.class)
+    public static class TrackingShadowBitmap extends ShadowBitmap {
+
+        @Implementation
+        public static Bitmap createBitmap(int width, int height, Bitmap.Config config) {
+            return record(ShadowBitmap.createBitmap(width, height, config));
+        }
+
+        @Implementation
+        public static Bitmap createBitmap(int[] colors, int width, int height,
+                                          Bitmap.Config config) {
+            return record(ShadowBitmap.createBitmap(colors, width, height, config));
+        }
+
+        @Implementation
+        public static Bitmap createBitmap(Bitmap src) {
+            return recordDerived(src, ShadowBitmap.createBitmap(src));
+        }
+
+        @Implementation
+        public static Bitmap createBitmap(Bitmap src, int x, int y, int width, int height) {
+            return recordDerived(src, ShadowBitmap.createBitmap(src, x, y, width, height));
+        }
+
+        @Implementation
+        public static Bitmap createBitmap(Bitmap src, int x, int y, int width, int height,
+                                          Matrix matrix, boolean filter) {
+            return recordDerived(src,
+                    ShadowBitmap.createBitmap(src, x, y, width, height, matrix, filter));
+        }
+
+        @Implementation
+        public static Bitmap createScaledBitmap(Bitmap src, int dstWidth, int dstHeight,
+                                                boolean filter) {
+            return recordDerived(src,
+                    ShadowBitmap.createScaledBitmap(src, dstWidth, dstHeight, filter));
+        }
+
+        @Implementation
+        @Override
+        public Bitmap copy(Bitmap.Config config, boolean isMutable) {
+            // Robolectric copies report no size, but a copy always matches its source
+            record(getWidth(), getHeight());
+            return super.copy(config, isMutable);
+        }
+    }
+
+    @Implements(BitmapFactory.class)
+    public static class TrackingShadowBitmapFactory extends ShadowBitmapFactory {
+
+        @Implementation
+        public static Bitmap decodeResource(Resources res, int id) {
+            return decodeResource(res, id, null);
+        }
+
+        @Implementation
+        public static Bitmap decodeResource(Resources res, int id, BitmapFactory.Options options) {
+            return recordDecoded(ShadowBitmapFactory.decodeResource(res, id, options), options);
+        }
+
+        @Implementation
+        public static Bitmap decodeFile(String pathName) {
+            return decodeFile(pathName, null);
+        }
+
+        @Implementation
+        public static Bitmap decodeFile(String pathName, BitmapFactory.Options options) {
+            return recordDecoded(ShadowBitmapFactory.decodeFile(pathName, options), options);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.android.emojify;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.view.WindowManager;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowBitmapFactory;
+import org.robolectric.shadows.ShadowDisplay;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Checks the size of the bitmaps decoded by {@link BitmapUtils#resamplePic}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class,
+        shadows = {BitmapAllocations.TrackingShadowBitmap.class,
+                BitmapAllocations.TrackingShadowBitmapFactory.class})
+public class BitmapUtilsTest {
+
+    private static final int SCREEN_WIDTH = 480;
+    private static final int SCREEN_HEIGHT = 800;
+
+    @Rule
+    public TemporaryFolder mTempFolder = new TemporaryFolder();
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+
+        WindowManager manager =
+                (WindowManager) mContext.getSystemService(Context.WINDOW_SERVICE);
+        ShadowDisplay display = shadowOf(manager.getDefaultDisplay());
+        display.setWidth(SCREEN_WIDTH);
+        display.setHeight(SCREEN_HEIGHT);
+
+        BitmapAllocations.reset();
+    }
+
+    @Test
+    public void resamplePic_smallerThanScreen_keepsSize() throws Exception {
+        assertDecodedSize(240, 400, 240, 400);
+    }
+
+    @Test
+    public void resamplePic_screenSize_keepsSize() throws Exception {
+        assertDecodedSize(480, 800, 480, 800);
+    }
+
+    @Test
+    public void resamplePic_twiceScreenSize_halvesSize() throws Exception {
+        assertDecodedSize(960, 1600, 480, 800);
+    }
+
+    @Test
+    public void resamplePic_fourTimesScreenSize_quartersSize() throws Exception {
+        assertDecodedSize(1920, 3200, 480, 800);
+    }
+
+    @Test
+    public void resamplePic_landscape_scalesBySmallestRatio() throws Exception {
+        assertDecodedSize(1920, 1600, 960, 800);
+    }
+
+    private void assertDecodedSize(int photoW, int photoH, int expectedW, int expectedH)
+            throws Exception {
+        File photo = mTempFolder.newFile();
+        ShadowBitmapFactory.provideWidthAndHeightHints(photo.getAbsolutePath(), photoW, photoH);
+
+        Bitmap bitmap = BitmapUtils.resamplePic(mContext, photo.getAbsolutePath());
+
+        assertEquals(expectedW, bitmap.getWidth());
+        assertEquals(expectedH, bitmap.getHeight());
+
+        // Only the resampled bitmap should be allocated, the bounds pass decodes nothing
+        assertEquals(1, BitmapAllocations.count());
+        assertEquals(BitmapAllocations.bytesFor(expectedW, expectedH), BitmapAllocations.bytes());
+    }
+}
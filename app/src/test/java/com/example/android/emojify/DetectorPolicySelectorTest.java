@@ -0,0 +1,115 @@
+package com.example.android.emojify;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks how {@link DetectorPolicySelector} picks a policy from the recorded timings.
+ */
+public class DetectorPolicySelectorTest {
+
+    // One megapixel, so the timings below are also in milliseconds per megapixel
+    private static final int WIDTH = 1000;
+    private static final int HEIGHT = 1000;
+    private static final long BUDGET_MS = 500;
+
+    private static final long FAST_MS = 100;
+    private static final long OVER_BUDGET_MS = 1000;
+    private static final long FAR_OVER_BUDGET_MS = 5000;
+
+    private DetectorPolicySelector mSelector;
+
+    @Before
+    public void setUp() {
+        mSelector = new DetectorPolicySelector();
+    }
+
+    @Test
+    public void choose_unmeasured_isAccurate() {
+        assertEquals(DetectorPolicy.ACCURATE, choose());
+    }
+
+    @Test
+    public void recordTiming_warmUp_isIgnored() {
+        mSelector.recordTiming(DetectorPolicy.ACCURATE, WIDTH, HEIGHT, FAR_OVER_BUDGET_MS);
+
+        assertEquals(DetectorPolicy.ACCURATE, choose());
+    }
+
+    @Test
+    public void recordTiming_afterRelease_warmUpIsIgnoredAgain() {
+        measure(DetectorPolicy.ACCURATE, FAST_MS);
+        mSelector.release();
+
+        mSelector.recordTiming(DetectorPolicy.ACCURATE, WIDTH, HEIGHT, FAR_OVER_BUDGET_MS);
+
+        assertEquals(DetectorPolicy.ACCURATE, choose());
+    }
+
+    @Test
+    public void choose_accurateOverBudget_isFast() {
+        measure(DetectorPolicy.ACCURATE, OVER_BUDGET_MS);
+
+        assertEquals(DetectorPolicy.FAST, choose());
+    }
+
+    @Test
+    public void choose_allOverBudget_keepsEveryFace() {
+        measure(DetectorPolicy.ACCURATE, OVER_BUDGET_MS);
+        measure(DetectorPolicy.FAST, OVER_BUDGET_MS);
+        measure(DetectorPolicy.FAST_LARGE_FACES, OVER_BUDGET_MS);
+
+        assertEquals(DetectorPolicy.FAST_LARGE_FACES, choose());
+    }
+
+    @Test
+    public void choose_allFarOverBudget_isProminentFace() {
+        measure(DetectorPolicy.ACCURATE, FAR_OVER_BUDGET_MS);
+        measure(DetectorPolicy.FAST, FAR_OVER_BUDGET_MS);
+        measure(DetectorPolicy.FAST_LARGE_FACES, FAR_OVER_BUDGET_MS);
+
+        assertEquals(DetectorPolicy.FAST_PROMINENT_FACE, choose());
+    }
+
+    @Test
+    public void choose_afterSlowSample_recoversAccurate() {
+        measure(DetectorPolicy.ACCURATE, FAST_MS);
+        mSelector.recordTiming(DetectorPolicy.ACCURATE, WIDTH, HEIGHT, FAR_OVER_BUDGET_MS);
+        assertEquals(DetectorPolicy.FAST, choose());
+
+        // The accurate policy is probed again once per interval
+        for (int job = 2; job < DetectorPolicySelector.PROBE_INTERVAL; job++) {
+            assertEquals(DetectorPolicy.FAST, choose());
+        }
+        assertEquals(DetectorPolicy.ACCURATE, choose());
+
+        // A single fast probe is enough to bring it back
+        mSelector.recordTiming(DetectorPolicy.ACCURATE, WIDTH, HEIGHT, FAST_MS);
+        assertEquals(DetectorPolicy.ACCURATE, choose());
+    }
+
+    @Test
+    public void choose_afterRunningAccurate_doesNotProbeRightAway() {
+        for (int job = 0; job < 2 * DetectorPolicySelector.PROBE_INTERVAL; job++) {
+            assertEquals(DetectorPolicy.ACCURATE, choose());
+        }
+
+        measure(DetectorPolicy.ACCURATE, OVER_BUDGET_MS);
+
+        assertEquals(DetectorPolicy.FAST, choose());
+    }
+
+    private DetectorPolicy choose() {
+        return mSelector.choose(WIDTH, HEIGHT, BUDGET_MS);
+    }
+
+    /**
+     * Records a warm-up detection followed by a measured one.
+     */
+    private void measure(DetectorPolicy policy, long elapsedMs) {
+        mSelector.recordTiming(policy, WIDTH, HEIGHT, elapsedMs);
+        mSelector.recordTiming(policy, WIDTH, HEIGHT, elapsedMs);
+    }
+}
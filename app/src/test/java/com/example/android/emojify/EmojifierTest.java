@@ -0,0 +1,171 @@
+package com.example.android.emojify;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.RectF;
+
+import com.google.android.gms.vision.face.Face;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowBitmapFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Checks the bitmaps allocated by {@link Emojifier#drawFaces} and the layers it draws, using
+ * {@link FakeFaceSource} in place of the Play Services detector.
+ * <p>
+ * Robolectric 3.x does not rasterize canvas operations, so the output is compared through the
+ * layer descriptions Robolectric records on the result bitmap (source, scaled size and position
+ * of each draw), not through its pixels. The emoji placement is also checked directly against
+ * the bounds computed by {@link Emojifier#emojiBounds}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class,
+        shadows = {BitmapAllocations.TrackingShadowBitmap.class,
+                BitmapAllocations.TrackingShadowBitmapFactory.class})
+public class EmojifierTest {
+
+    private static final int PICTURE_WIDTH = 480;
+    private static final int PICTURE_HEIGHT = 800;
+    private static final int EMOJI_SIZE = 100;
+
+    private static final int[] EMOJI_RESOURCES = {R.drawable.smile, R.drawable.frown,
+            R.drawable.neutral, R.drawable.leftwink, R.drawable.rightwink,
+            R.drawable.closed_smile, R.drawable.closed_frown};
+
+    private Context mContext;
+    private Bitmap mPicture;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+
+        for (int resource : EMOJI_RESOURCES) {
+            ShadowBitmapFactory.provideWidthAndHeightHints(resource, EMOJI_SIZE, EMOJI_SIZE);
+        }
+
+        mPicture = Bitmap.createBitmap(PICTURE_WIDTH, PICTURE_HEIGHT, Bitmap.Config.ARGB_8888);
+        BitmapAllocations.reset();
+    }
+
+    @Test
+    public void drawFaces_noFaces_returnsPictureWithoutAllocating() {
+        Bitmap result = Emojifier.drawFaces(mContext, mPicture, new FakeFaceSource().detect());
+
+        assertSame(mPicture, result);
+        assertEquals(0, BitmapAllocations.count());
+    }
+
+    @Test
+    public void drawFaces_staysWithinAllocationBudget() {
+        int numFaces = 5;
+        FakeFaceSource faceSource = new FakeFaceSource();
+        for (int i = 0; i < numFaces; i++) {
+            faceSource.addFace(i * 90, i * 150, 80, 100, .9f, .9f, .9f);
+        }
+
+        Emojifier.drawFaces(mContext, mPicture, faceSource.detect());
+
+        // One full frame for the whole job, then a decoded and a scaled emoji per face
+        long frameBytes = BitmapAllocations.bytesFor(PICTURE_WIDTH, PICTURE_HEIGHT);
+        long emojiBytes = BitmapAllocations.bytesFor(EMOJI_SIZE, EMOJI_SIZE);
+        assertTrue("Allocated " + BitmapAllocations.count() + " bitmaps",
+                BitmapAllocations.count() <= 1 + 2 * numFaces);
+        assertTrue("Allocated " + BitmapAllocations.bytes() + " bytes",
+                BitmapAllocations.bytes() <= frameBytes + 2 * numFaces * emojiBytes);
+    }
+
+    @Test
+    public void trackingShadows_countCopiesAndCrops() {
+        mPicture.copy(Bitmap.Config.ARGB_8888, true);
+        Bitmap.createBitmap(mPicture, 0, 0, PICTURE_WIDTH, PICTURE_HEIGHT / 2);
+
+        // Returns the picture itself, nothing is allocated
+        Bitmap.createBitmap(mPicture);
+
+        assertEquals(2, BitmapAllocations.count());
+        assertEquals(BitmapAllocations.bytesFor(PICTURE_WIDTH, PICTURE_HEIGHT)
+                        + BitmapAllocations.bytesFor(PICTURE_WIDTH, PICTURE_HEIGHT / 2),
+                BitmapAllocations.bytes());
+    }
+
+    @Test
+    public void emojiBounds_matchFaceWidthAndCenter() {
+        Face face = new FakeFaceSource().addFace(100, 200, 200, 240, .9f, .9f, .9f)
+                .detect().valueAt(0);
+
+        assertEquals(new RectF(110, 266, 290, 428),
+                Emojifier.emojiBounds(face, EMOJI_SIZE, EMOJI_SIZE));
+    }
+
+    @Test
+    public void emojiBounds_keepEmojiAspectRatio() {
+        Face face = new FakeFaceSource().addFace(20.5f, 20.5f, 100, 120, .9f, .9f, .9f)
+                .detect().valueAt(0);
+
+        assertEquals(new RectF(25.5f, 63.5f, 115.5f, 116.5f),
+                Emojifier.emojiBounds(face, EMOJI_SIZE * 2, EMOJI_SIZE * 4 / 3));
+    }
+
+    @Test
+    public void drawFaces_singleFace_layersMatchGolden() throws IOException {
+        FakeFaceSource faceSource = new FakeFaceSource()
+                .addFace(100, 200, 200, 240, .9f, .9f, .9f);
+
+        Bitmap result = Emojifier.drawFaces(mContext, mPicture, faceSource.detect());
+
+        assertLayersMatchGolden("golden/single_face_layers.txt", result);
+    }
+
+    @Test
+    public void drawFaces_multipleFaces_layersMatchGolden() throws IOException {
+        FakeFaceSource faceSource = new FakeFaceSource()
+                .addFace(100, 200, 200, 240, .9f, .9f, .9f)
+                .addFace(300, 500, 100, 120, .005f, .9f, .9f)
+                .addFace(20, 20, 100, 120, .9f, .1f, .1f);
+
+        Bitmap result = Emojifier.drawFaces(mContext, mPicture, faceSource.detect());
+
+        assertLayersMatchGolden("golden/multiple_faces_layers.txt", result);
+    }
+
+    /**
+     * Compares the layer description of the result bitmap, one draw per line, with a golden
+     * file from the test resources.
+     */
+    private void assertLayersMatchGolden(String goldenPath, Bitmap result) throws IOException {
+        InputStream golden = getClass().getClassLoader().getResourceAsStream(goldenPath);
+        assertNotNull("Missing golden file " + goldenPath, golden);
+
+        StringBuilder expected = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(golden, "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (expected.length() > 0) {
+                    expected.append('\n');
+                }
+                expected.append(line);
+            }
+        } finally {
+            reader.close();
+        }
+
+        assertEquals(expected.toString(), shadowOf(result).getDescription());
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.android.emojify;
+
+import android.graphics.PointF;
+import android.util.SparseArray;
+
+import com.google.android.gms.vision.face.Face;
+import com.google.android.gms.vision.face.Landmark;
+
+/**
+ * Stands in for the Play Services face detector, returning a fixed set of faces.
+ */
+class FakeFaceSource {
+
+    private final SparseArray<Face> mFaces = new SparseArray<>();
+
+    /**
+     * Adds a face with the given bounds and classification probabilities.
+     */
+    FakeFaceSource addFace(float x, float y, float width, float height, float smilingProb,
+                           float leftEyeOpenProb, float rightEyeOpenProb) {
+        int id = mFaces.size();
+        mFaces.put(id, new Face(id, new PointF(x, y), width, height, 0, 0, new Landmark[0],
+                leftEyeOpenProb, rightEyeOpenProb, smilingProb));
+        return this;
+    }
+
+    SparseArray<Face> detect() {
+        return mFaces;
+    }
+}